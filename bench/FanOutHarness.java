@@ -0,0 +1,139 @@
+import aromachat.server.AromaConnection;
+import aromachat.server.AromaProtocol;
+import aromachat.server.AromaTextChannel;
+import com.google.gson.Gson;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Fan-out harness: fills a text channel with fake members and reports the p50/p99 latency
+ * until the last member has received a broadcast
+ *
+ * Compares the single-stream delivery the server used before sharding (one parallel stream
+ * under one monitor, encoding per member), one shard holding every member, and the sharded channel.
+ *
+ * Usage: java -cp target/AromaServer-1.0-SNAPSHOT-jar-with-dependencies.jar bench/FanOutHarness.java
+ *            [members] [rounds] [send cost in microseconds] [shard size] [threads] [warm-up rounds]
+ *
+ * Every variant runs the same number of untimed warm-up rounds before its timed rounds.
+ */
+public class FanOutHarness {
+    /**
+     * Fake members only pay the send cost while a measurement is running
+     */
+    private static volatile boolean measuring = false;
+
+    public static void main(String[] args) {
+        int members = (args.length > 0) ? Integer.parseInt(args[0]) : 20000;
+        int rounds = (args.length > 1) ? Integer.parseInt(args[1]) : 200;
+        long sendNanos = ((args.length > 2) ? Long.parseLong(args[2]) : 5) * 1000;
+        int shardSize = (args.length > 3) ? Integer.parseInt(args[3]) : 256;
+        int threads = (args.length > 4) ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+        int warmup = (args.length > 5) ? Integer.parseInt(args[5]) : 20;
+
+        System.out.printf("members=%d rounds=%d warm-up=%d send=%d us shard=%d threads=%d%n",
+                          members, rounds, warmup, sendNanos / 1000, shardSize, threads);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        FakeMember[] fakes = new FakeMember[members];
+        for (int i = 0; i < members; i++) fakes[i] = new FakeMember("member" + i, sendNanos);
+
+        report("single-stream", measureSingleStream(fakes, warmup, rounds));
+        report("one shard", measureChannel(new AromaTextChannel("one", 0, Integer.MAX_VALUE, executor), fakes, warmup, rounds));
+        report("sharded", measureChannel(new AromaTextChannel("sharded", 1, shardSize, executor), fakes, warmup, rounds));
+
+        executor.shutdown();
+    }
+
+    /**
+     * Time broadcasts the way the server delivered them before sharding
+     */
+    private static long[] measureSingleStream(FakeMember[] fakes, int warmup, int rounds) {
+        Map<String, AromaConnection> users = new HashMap<>();
+        for (FakeMember fake : fakes) users.put(fake.getUsername(), fake);
+
+        long[] latencies = new long[rounds];
+        measuring = true;
+        for (int r = -warmup; r < rounds; r++) {
+            Object message = message(r);
+            long start = System.nanoTime();
+            synchronized (users) {
+                users.values().stream()
+                              .parallel()
+                              .forEach(user -> user.sendText(new Gson().toJson(message)));
+            }
+            if (r >= 0) latencies[r] = System.nanoTime() - start;
+        }
+        measuring = false;
+
+        return latencies;
+    }
+
+    /**
+     * Time broadcasts through a text channel until the future of each one completes
+     */
+    private static long[] measureChannel(AromaTextChannel channel, FakeMember[] fakes, int warmup, int rounds) {
+        for (FakeMember fake : fakes) channel.join(fake);
+
+        // Wait for the join notices to drain
+        channel.broadcast(message(-warmup - 1)).join();
+
+        long[] latencies = new long[rounds];
+        measuring = true;
+        for (int r = -warmup; r < rounds; r++) {
+            long start = System.nanoTime();
+            channel.broadcast(message(r)).join();
+            if (r >= 0) latencies[r] = System.nanoTime() - start;
+        }
+        measuring = false;
+
+        return latencies;
+    }
+
+    private static Object message(int round) {
+        AromaProtocol.Packet.Response.UserMessage message = new AromaProtocol.Packet.Response.UserMessage();
+        message.setSender("harness");
+        message.setContent("round " + round);
+        message.setChannel("bench");
+        return message;
+    }
+
+    private static void report(String name, long[] latencies) {
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-14s last-recipient p50=%8.2f ms p99=%8.2f ms%n",
+                          name,
+                          sorted[(int) Math.ceil(0.50 * sorted.length) - 1] / 1e6,
+                          sorted[(int) Math.ceil(0.99 * sorted.length) - 1] / 1e6);
+    }
+
+    /**
+     * A member without a WebSocket that spins for the cost of one send
+     */
+    private static final class FakeMember extends AromaConnection {
+        private final String username;
+        private final long sendNanos;
+
+        private FakeMember(String username, long sendNanos) {
+            this.username = username;
+            this.sendNanos = sendNanos;
+        }
+
+        @Override
+        public void sendText(String text) {
+            if (!measuring) return;
+
+            long end = System.nanoTime() + this.sendNanos;
+            while (System.nanoTime() < end) Thread.onSpinWait();
+        }
+
+        @Override
+        public String getUsername() {
+            return this.username;
+        }
+    }
+}
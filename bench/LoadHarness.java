@@ -0,0 +1,119 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Load harness: connects many clients to one text channel, has every client send messages
+ * and reports delivery throughput and end-to-end latency
+ *
+ * Usage: java bench/LoadHarness.java [url] [clients] [messages per client] [channel]
+ */
+public class LoadHarness {
+    private static final Pattern CONTENT = Pattern.compile("\"content\":\"(\\d+)\"");
+
+    public static void main(String[] args) throws Exception {
+        String url = (args.length > 0) ? args[0] : "ws://localhost:19890/aromachat/chat";
+        int clients = (args.length > 1) ? Integer.parseInt(args[1]) : 100;
+        int messages = (args.length > 2) ? Integer.parseInt(args[2]) : 50;
+        String channel = (args.length > 3) ? args[3] : "general";
+
+        // Every message reaches every client, the sender included
+        int expected = clients * messages * clients;
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        CountDownLatch joined = new CountDownLatch(clients);
+        CountDownLatch done = new CountDownLatch(expected);
+
+        HttpClient http = HttpClient.newHttpClient();
+        List<WebSocket> sockets = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            WebSocket.Listener listener = new WebSocket.Listener() {
+                private final StringBuilder buffer = new StringBuilder();
+
+                @Override
+                public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+                    this.buffer.append(data);
+                    if (last) {
+                        handle(this.buffer.toString());
+                        this.buffer.setLength(0);
+                    }
+
+                    webSocket.request(1);
+                    return null;
+                }
+
+                private void handle(String text) {
+                    if (text.contains("\"type\":\"join\"")) {
+                        joined.countDown();
+                        return;
+                    }
+
+                    if (!text.contains("\"type\":\"usermessage\"")) return;
+
+                    Matcher matcher = CONTENT.matcher(text);
+                    if (!matcher.find()) return;
+
+                    // Count down only once the sample has been recorded
+                    latencies.add(System.nanoTime() - Long.parseLong(matcher.group(1)));
+                    done.countDown();
+                }
+            };
+
+            sockets.add(http.newWebSocketBuilder()
+                            .buildAsync(URI.create(url + "?username=load" + i + "&protocol=0.0.6"), listener)
+                            .join());
+        }
+
+        // Join the channel with every client
+        for (WebSocket socket : sockets)
+            socket.sendText("{\"type\":\"join\",\"channel\":\"" + channel + "\"}", true).join();
+
+        if (!joined.await(60, TimeUnit.SECONDS))
+            throw new IllegalStateException("Not all clients joined " + channel);
+
+        // Every client sends its messages as fast as the connection allows
+        long start = System.nanoTime();
+        List<CompletableFuture<Void>> senders = new ArrayList<>();
+        for (WebSocket socket : sockets) {
+            senders.add(CompletableFuture.runAsync(() -> {
+                for (int m = 0; m < messages; m++) {
+                    socket.sendText("{\"type\":\"usermessage\",\"channel\":\"" + channel
+                                    + "\",\"content\":\"" + System.nanoTime() + "\"}", true).join();
+                }
+            }));
+        }
+
+        CompletableFuture.allOf(senders.toArray(new CompletableFuture[0])).join();
+        boolean complete = done.await(120, TimeUnit.SECONDS);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        int count = sorted.length;
+
+        System.out.printf("clients=%d messages/client=%d delivered=%d/%d%s%n",
+                          clients, messages, count, expected, complete ? "" : " (timed out)");
+        System.out.printf("throughput=%.0f deliveries/s p50=%.2f ms p99=%.2f ms max=%.2f ms%n",
+                          count / seconds,
+                          percentile(sorted, 0.50) / 1e6,
+                          percentile(sorted, 0.99) / 1e6,
+                          percentile(sorted, 1.00) / 1e6);
+
+        for (WebSocket socket : sockets)
+            socket.sendClose(WebSocket.NORMAL_CLOSURE, "").join();
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+}
@@ -0,0 +1,41 @@
+#!/bin/sh
+# Compares the default transport settings with the tuned ones in bench/aroma-tuned.json
+# by running bench/LoadHarness.java against a server started with each configuration.
+#
+# Build the jar first: mvn -B package
+#
+# Usage: bench/load.sh [clients] [messages per client]
+
+cd "$(dirname "$0")/.." || exit 1
+
+CLIENTS=${1:-100}
+MESSAGES=${2:-50}
+PORT=19890
+JAR=target/AromaServer-1.0-SNAPSHOT-jar-with-dependencies.jar
+
+# Runs the harness against a server started with the given configuration
+measure() {
+    name=$1
+    config=$2
+
+    java -jar "$JAR" "$config" > /dev/null 2>&1 &
+    pid=$!
+
+    # Wait until the server accepts connections
+    until curl -s -o /dev/null "http://localhost:$PORT/"; do
+        if ! kill -0 "$pid" 2> /dev/null; then
+            echo "$name: server exited before accepting connections"
+            return 1
+        fi
+        sleep 0.1
+    done
+
+    echo "== $name ($config)"
+    java bench/LoadHarness.java "ws://localhost:$PORT/aromachat/chat" "$CLIENTS" "$MESSAGES" general
+
+    kill "$pid"
+    wait "$pid" 2> /dev/null
+}
+
+measure default src/training/aroma.json
+measure tuned bench/aroma-tuned.json
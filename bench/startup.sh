@@ -0,0 +1,69 @@
+#!/bin/sh
+# Measures time-to-first-accepted-connection and resident memory of each build variant.
+#
+# Build the variants first:
+#   mvn -B package              (jar)
+#   mvn -B package -P appcds    (jar + target/AromaServer.jsa)
+#
+# Usage: bench/startup.sh [runs]
+
+cd "$(dirname "$0")/.." || exit 1
+
+RUNS=${1:-5}
+CONFIG=src/training/aroma.json
+PORT=19890
+JAR=target/AromaServer-1.0-SNAPSHOT-jar-with-dependencies.jar
+JSA=target/AromaServer.jsa
+URL="http://localhost:$PORT/aromachat/chat?username=bench&protocol=0.0.6"
+
+now_ms() {
+    echo $(($(date +%s%N) / 1000000))
+}
+
+# Succeeds once the server accepts a WebSocket handshake
+accepted() {
+    code=$(curl -s -o /dev/null -w '%{http_code}' --max-time 1 \
+                -H 'Connection: Upgrade' \
+                -H 'Upgrade: websocket' \
+                -H 'Sec-WebSocket-Version: 13' \
+                -H 'Sec-WebSocket-Key: YXJvbWFjaGF0YmVuY2g=' \
+                "$URL")
+    [ "$code" = "101" ]
+}
+
+# Runs one variant RUNS times and prints the startup time and resident memory of each run
+measure() {
+    name=$1
+    shift
+
+    i=0
+    while [ "$i" -lt "$RUNS" ]; do
+        start=$(now_ms)
+        "$@" "$CONFIG" > /dev/null 2>&1 &
+        pid=$!
+
+        # The handshake is timed from the start of the attempt that succeeds,
+        # since curl only returns once its timeout closes the upgraded connection
+        attempt=$(now_ms)
+        until accepted; do
+            if ! kill -0 "$pid" 2> /dev/null; then
+                echo "$name: server exited before accepting a connection"
+                return 1
+            fi
+            attempt=$(now_ms)
+        done
+
+        elapsed=$((attempt - start))
+        rss=$(awk '/VmRSS/ { print $2 }' "/proc/$pid/status")
+        echo "$name run $((i + 1)): first connection after ${elapsed} ms, RSS ${rss} kB"
+
+        kill "$pid"
+        wait "$pid" 2> /dev/null
+        i=$((i + 1))
+    done
+}
+
+[ -f "$JAR" ] && measure jar java -jar "$JAR"
+[ -f "$JAR" ] && [ -f "$JSA" ] && measure appcds java -XX:SharedArchiveFile="$JSA" -jar "$JAR"
+
+exit 0
@@ -12,6 +12,10 @@ public final class AromaConfiguration {
      * The address on which the server is hosted
      */
     private String host;
+    /**
+     * The port on which the server is hosted
+     */
+    private int port = AromaProtocol.DEFAULT_PORT;
     /**
      * The server's name
      */
@@ -20,11 +24,53 @@ public final class AromaConfiguration {
      * The list of text channels available to users
      */
     private final List<String> textChannels = new ArrayList<>();
+    /**
+     * The list of addresses and ports the server listens on
+     * @apiNote if empty, the server only listens on host and port
+     */
+    private final List<Listener> listeners = new ArrayList<>();
+    /**
+     * The settings of the underlying WebSocket transport
+     */
+    private final Transport transport = new Transport();
+    /**
+     * The maximum number of users in each shard of a text channel
+     */
+    private int channelShardSize = 256;
+    /**
+     * The number of threads that deliver text channel messages
+     * @apiNote if not positive, one thread per available processor is used
+     */
+    private int broadcastThreads;
+    /**
+     * The maximum number of messages waiting to be sent to a client before it is disconnected
+     */
+    private int maxQueuedMessages = 1024;
+    /**
+     * The time (in milliseconds) after which a message that could not be sent disconnects the client
+     */
+    private long sendTimeout = 10000;
+    /**
+     * The list of terms that are not allowed in user messages
+     */
+    private final List<String> bannedTerms = new ArrayList<>();
+    /**
+     * If user messages containing banned terms are discarded instead of masked
+     */
+    private boolean rejectBannedMessages;
+    /**
+     * If banned terms only match whole words, not parts of longer words
+     */
+    private boolean matchWholeWords = true;
 
     public String getHost() {
         return this.host;
     }
 
+    public int getPort() {
+        return this.port;
+    }
+
     public String getServerName() {
         return this.serverName;
     }
@@ -32,4 +78,124 @@ public final class AromaConfiguration {
     public List<String> getTextChannelNames() {
         return this.textChannels;
     }
+
+    /**
+     * @return the configured listeners or a single listener on host and port if none are configured
+     */
+    public List<Listener> getListeners() {
+        if (this.listeners.isEmpty())
+            return List.of(new Listener(this.host, this.port));
+
+        return this.listeners;
+    }
+
+    public Transport getTransport() {
+        return this.transport;
+    }
+
+    public int getChannelShardSize() {
+        return this.channelShardSize;
+    }
+
+    public int getBroadcastThreads() {
+        if (this.broadcastThreads <= 0)
+            return Runtime.getRuntime().availableProcessors();
+
+        return this.broadcastThreads;
+    }
+
+    public int getMaxQueuedMessages() {
+        return this.maxQueuedMessages;
+    }
+
+    public long getSendTimeout() {
+        return this.sendTimeout;
+    }
+
+    public List<String> getBannedTerms() {
+        return this.bannedTerms;
+    }
+
+    public boolean isRejectingBannedMessages() {
+        return this.rejectBannedMessages;
+    }
+
+    public boolean isMatchingWholeWords() {
+        return this.matchWholeWords;
+    }
+
+    /**
+     * An address and port on which the server accepts connections
+     */
+    public static final class Listener {
+        /**
+         * The address on which the listener is bound
+         */
+        private String host;
+        /**
+         * The port on which the listener is bound
+         */
+        private int port = AromaProtocol.DEFAULT_PORT;
+
+        private Listener() { }
+
+        public Listener(String host, int port) {
+            this.host = host;
+            this.port = port;
+        }
+
+        public String getHost() {
+            return this.host;
+        }
+
+        public int getPort() {
+            return this.port;
+        }
+
+        @Override
+        public String toString() {
+            return this.host + ":" + this.port;
+        }
+    }
+
+    /**
+     * Settings of the Grizzly transport used by Tyrus
+     * @apiNote values that are not positive leave the Tyrus/Grizzly default in place
+     */
+    public static final class Transport {
+        /**
+         * The number of threads that run the endpoints
+         * @apiNote every listener has its own pool of this size
+         */
+        private int workerThreads;
+        /**
+         * The maximum number of tasks queued for the worker threads of each listener
+         */
+        private int workerQueueLimit;
+        /**
+         * The number of threads that run the NIO selectors
+         * @apiNote every listener has its own pool of this size
+         */
+        private int selectorThreads;
+        /**
+         * The size (in bytes) of the buffer for incoming messages, which is also the largest frame accepted
+         */
+        private int incomingBufferSize;
+
+        public int getWorkerThreads() {
+            return this.workerThreads;
+        }
+
+        public int getWorkerQueueLimit() {
+            return this.workerQueueLimit;
+        }
+
+        public int getSelectorThreads() {
+            return this.selectorThreads;
+        }
+
+        public int getIncomingBufferSize() {
+            return this.incomingBufferSize;
+        }
+    }
 }
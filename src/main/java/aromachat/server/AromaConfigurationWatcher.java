@@ -0,0 +1,92 @@
+package aromachat.server;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+
+/**
+ * Watches the configuration file and applies the settings that can change while the server is running
+ * @apiNote only the content filter rules (bannedTerms, matchWholeWords, rejectBannedMessages) are reloaded
+ */
+public final class AromaConfigurationWatcher implements Runnable {
+    /**
+     * The configuration file
+     */
+    private final Path path;
+
+    public AromaConfigurationWatcher(Path path) {
+        this.path = path.toAbsolutePath();
+    }
+
+    /**
+     * Start watching the configuration file on a daemon thread
+     */
+    public void start() {
+        Thread thread = new Thread(this, "aroma-configuration-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+            // Files cannot be watched directly, so the directory that contains it is
+            this.path.getParent().register(watchService,
+                                           StandardWatchEventKinds.ENTRY_CREATE,
+                                           StandardWatchEventKinds.ENTRY_MODIFY);
+
+            while (true) {
+                WatchKey key = watchService.take();
+
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (this.path.getFileName().equals(event.context())) changed = true;
+                }
+
+                if (changed) this.reload();
+                if (!key.reset()) return;
+            }
+        }
+        catch (IOException ioe) {
+            System.out.println("Could not watch " + this.path + ": " + ioe.getMessage());
+        }
+        catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Read the configuration file again and apply it
+     */
+    private void reload() {
+        AromaConfiguration configuration;
+        try (FileReader reader = new FileReader(this.path.toFile(), Charset.defaultCharset())) {
+            configuration = new Gson().fromJson(reader, AromaConfiguration.class);
+        }
+        catch (IOException |
+                JsonParseException e) {
+            // Keep the current settings until the file is valid again
+            System.out.println("Could not reload " + this.path + ": " + e.getMessage());
+            return;
+        }
+
+        if (configuration == null) return;
+
+        AromaServer.getInstance()
+                    .getContentFilter()
+                     .setRules(configuration.getBannedTerms(),
+                               configuration.isMatchingWholeWords(),
+                               configuration.isRejectingBannedMessages());
+
+        System.out.println("Reloaded content filter from " + this.path);
+    }
+}
@@ -1,12 +1,19 @@
 package aromachat.server;
 
 import aromachat.server.util.ObjectUtility;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
 import javax.websocket.*;
 import javax.websocket.server.ServerEndpoint;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Handles a client's connection
@@ -25,9 +32,25 @@ public class AromaConnection {
      */
     private String username;
     /**
-     * The text channel the client is connected to
+     * The ids of the text channels the client is subscribed to
      */
-    private AromaTextChannel textChannel;
+    private final BitSet textChannels = new BitSet();
+    /**
+     * The messages waiting to be sent, in order
+     */
+    private final Queue<String> outbox = new ArrayDeque<>();
+    /**
+     * Held while accessing the outbox and the sending state
+     */
+    private final Object sendLock = new Object();
+    /**
+     * If a message is being sent, only one send at a time is allowed on a session
+     */
+    private boolean sending = false;
+    /**
+     * If the client is being disconnected because it could not keep up
+     */
+    private boolean dropped = false;
     /**
      * If the user has joined or not
      */
@@ -65,6 +88,7 @@ public class AromaConnection {
 
         // Save values into fields
         this.wsSession = session;
+        this.wsSession.getAsyncRemote().setSendTimeout(AromaServer.getConfiguration().getSendTimeout());
         this.username = session.getRequestParameterMap()
                                 .get(AromaProtocol.Parameter.USERNAME).get(0);
 
@@ -100,6 +124,16 @@ public class AromaConnection {
      */
     @OnMessage
     public void onMessage(Session session, JsonObject message) {
+        // Let the interceptors inspect the message first
+        AromaInterceptor rejectedBy = AromaServer.getInstance().getPipeline().process(this, message);
+        if (rejectedBy != null) {
+            // Tell the client why the message was discarded
+            AromaProtocol.Packet.Response.Rejected rejected = new AromaProtocol.Packet.Response.Rejected();
+            rejected.setReason(rejectedBy.getRejectionReason());
+            this.send(rejected);
+            return;
+        }
+
         // Forward the message to the right event listener
         new ObjectUtility(this).forEachMethodWithAnnotation(AromaEvent.class,
                                                             method -> {
@@ -131,10 +165,10 @@ public class AromaConnection {
         // Disconnect the client from the server
         AromaServer.getInstance().disconnect(this);
 
-        // Disconnect the client from the text channel
-        if (this.textChannel != null) {
-            this.textChannel.leave(this);
-        }
+        // Disconnect the client from all text channels
+        this.textChannels.stream()
+                          .forEach(id -> AromaServer.getInstance().getTextChannel(id).leave(this));
+        this.textChannels.clear();
 
         // Broadcast logout notification
         AromaProtocol.Packet.Response.UserLogout userLogout = new AromaProtocol.Packet.Response.UserLogout();
@@ -150,14 +184,16 @@ public class AromaConnection {
      */
     @AromaEvent(AromaProtocol.Event.USER_MESSAGE)
     public void onUserMessage(JsonObject jsonObject) {
-        // If the user has yet to join a text channel, then the message is discarded
-        if (this.textChannel == null) return;
+        // If the user is not subscribed to the target channel, then the message is discarded
+        AromaTextChannel textChannel = this.getSubscribedChannel(jsonObject.get(AromaProtocol.Packet.Response.UserMessage.CHANNEL));
+        if (textChannel == null) return;
 
         // Broadcast the message to all clients connected to the channel
         AromaProtocol.Packet.Response.UserMessage msg = new AromaProtocol.Packet.Response.UserMessage();
         msg.setSender(this.username);
         msg.setContent(jsonObject.get(AromaProtocol.Packet.Response.UserMessage.CONTENT).getAsString());
-        this.textChannel.broadcast(msg);
+        msg.setChannel(textChannel.getName());
+        textChannel.broadcast(msg);
     }
 
     /**
@@ -169,25 +205,24 @@ public class AromaConnection {
         // Get the channel's name from the request
         String channelName = jsonObject.get(AromaProtocol.Packet.Request.Join.CHANNEL).getAsString();
 
-        if (this.textChannel != null) {
-            // Leave the current channel
-            this.textChannel.leave(this);
-        }
-
         // Get the channel
-        if ((this.textChannel = AromaServer.getInstance()
-                                            .getTextChannels()
-                                             .get(channelName)) == null) {
+        AromaTextChannel textChannel;
+        if ((textChannel = AromaServer.getInstance()
+                                       .getTextChannels()
+                                        .get(channelName)) == null) {
             throw new RuntimeException(new NullPointerException("No such text channel " + channelName));
         }
 
-        // Join the requested channel
-        this.textChannel.join(this);
+        // Join the requested channel, other subscriptions are kept
+        if (!this.textChannels.get(textChannel.getId())) {
+            textChannel.join(this);
+            this.textChannels.set(textChannel.getId());
+        }
 
         // Send confirmation reply
         AromaProtocol.Packet.Response.Join join = new AromaProtocol.Packet.Response.Join();
         join.setName(channelName);
-        join.setMessages(this.textChannel.getMessages());
+        join.setMessages(textChannel.getMessages());
         this.send(join);
 
         System.out.println(this.username + " joined " + channelName);
@@ -199,20 +234,57 @@ public class AromaConnection {
      */
     @AromaEvent(AromaProtocol.Event.LEAVE)
     public void onLeave(JsonObject jsonObject) {
-        // If the user is not connected to a text channel, then it makes not sense to leave
-        if (this.textChannel == null) return;
+        // Without a channel name, the user leaves every channel
+        if (jsonObject.get(AromaProtocol.Packet.Request.Leave.CHANNEL) == null) {
+            this.textChannels.stream()
+                              .forEach(id -> this.leave(AromaServer.getInstance().getTextChannel(id)));
+            this.textChannels.clear();
+            return;
+        }
+
+        // If the user is not subscribed to the channel, then it makes not sense to leave
+        AromaTextChannel textChannel = this.getSubscribedChannel(jsonObject.get(AromaProtocol.Packet.Request.Leave.CHANNEL));
+        if (textChannel == null) return;
+
+        this.leave(textChannel);
+        this.textChannels.clear(textChannel.getId());
+    }
+
+    /**
+     * Leave a channel and notify the client
+     * @apiNote the subscription must be cleared by the caller
+     * @param textChannel the channel
+     */
+    private void leave(AromaTextChannel textChannel) {
+        // Leave channel first, so nothing from it is sent after the reply
+        textChannel.leave(this);
 
         // Send confirmation reply
         AromaProtocol.Packet.Response.Leave leave = new AromaProtocol.Packet.Response.Leave();
-        leave.setName(this.textChannel.getName());
+        leave.setName(textChannel.getName());
         this.send(leave);
 
-        // Leave channel
-        String channelName = this.textChannel.getName();
-        this.textChannel.leave(this);
-        this.textChannel = null;
+        System.out.println(this.username + " left " + textChannel.getName());
+    }
+
+    /**
+     * Find a channel the client is subscribed to
+     * @param channelName the channel's name, if null the client's only subscription is used
+     * @return the channel, or null if the client is not subscribed to it
+     */
+    private AromaTextChannel getSubscribedChannel(JsonElement channelName) {
+        // Untagged messages are only allowed while the client is subscribed to a single channel
+        if (channelName == null) {
+            return (this.textChannels.cardinality() == 1)
+                   ? AromaServer.getInstance().getTextChannel(this.textChannels.nextSetBit(0))
+                   : null;
+        }
+
+        AromaTextChannel textChannel = AromaServer.getInstance()
+                                                   .getTextChannels()
+                                                    .get(channelName.getAsString());
 
-        System.out.println(this.username + " left " + channelName);
+        return (textChannel != null && this.textChannels.get(textChannel.getId())) ? textChannel : null;
     }
 
     /**
@@ -220,11 +292,82 @@ public class AromaConnection {
      * @param object the object
      */
     public void send(Object object) {
-        try { this.wsSession.getBasicRemote().sendObject(object); }
-        catch (IOException |
-                EncodeException e) {
-            throw new RuntimeException(e);
+        this.sendText(new Gson().toJson(object));
+    }
+
+    /**
+     * Queue an already encoded message, messages are sent in order without blocking the caller
+     * @apiNote a client whose queue is full or whose send fails is disconnected
+     * @param text the encoded message
+     */
+    public void sendText(String text) {
+        synchronized (this.sendLock) {
+            if (this.dropped) return;
+
+            if (this.outbox.size() >= AromaServer.getConfiguration().getMaxQueuedMessages()) {
+                this.drop("Too many messages waiting to be sent");
+                return;
+            }
+
+            this.outbox.add(text);
+
+            // Start sending unless a send is already in progress
+            if (this.sending) return;
+            this.sending = true;
         }
+
+        this.sendNext();
+    }
+
+    /**
+     * Send queued messages until the queue is empty or a send has to wait for the network
+     */
+    private void sendNext() {
+        while (true) {
+            String text;
+            synchronized (this.sendLock) {
+                if (this.dropped || (text = this.outbox.poll()) == null) {
+                    this.sending = false;
+                    return;
+                }
+            }
+
+            // Whoever finishes second between this loop and the handler sends the next message
+            AtomicBoolean handedOver = new AtomicBoolean(false);
+            this.wsSession.getAsyncRemote().sendText(text, result -> {
+                if (!result.isOK()) {
+                    synchronized (this.sendLock) {
+                        this.drop("Could not send message: " + result.getException());
+                    }
+                }
+
+                if (!handedOver.compareAndSet(false, true)) this.sendNext();
+            });
+
+            // The send is still in progress, the handler will continue
+            if (handedOver.compareAndSet(false, true)) return;
+        }
+    }
+
+    /**
+     * Disconnect a client that cannot keep up
+     * @apiNote must be called while holding the send lock
+     * @param reason the reason
+     */
+    private void drop(String reason) {
+        if (this.dropped) return;
+        this.dropped = true;
+        this.outbox.clear();
+
+        System.out.println(this.username + " dropped: " + reason);
+
+        // Closing may wait for the network, so it does not happen on the caller's thread
+        CompletableFuture.runAsync(() -> {
+            try { this.wsSession.close(new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER, reason)); }
+            catch (IOException ioe) {
+                System.out.println("Could not close connection of " + this.username + ": " + ioe.getMessage());
+            }
+        });
     }
 
     public Session getSession() {
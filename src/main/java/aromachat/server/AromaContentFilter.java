@@ -0,0 +1,71 @@
+package aromachat.server;
+
+import aromachat.server.util.PatternMatcher;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.Collection;
+
+/**
+ * Interceptor that masks or rejects user messages containing banned terms
+ * @apiNote the banned terms can be replaced at any time without pausing traffic
+ */
+public final class AromaContentFilter implements AromaInterceptor {
+    /**
+     * The character that replaces banned terms
+     */
+    public static final char MASK = '*';
+
+    /**
+     * The rules currently in use
+     */
+    private volatile Rules rules;
+
+    public AromaContentFilter(Collection<String> bannedTerms, boolean wholeWords, boolean rejecting) {
+        this.rules = new Rules(new PatternMatcher(bannedTerms, wholeWords), rejecting);
+    }
+
+    /**
+     * Replace the banned terms and the action taken on them
+     * @apiNote the new terms are compiled before being swapped in, messages being filtered keep the old rules
+     * @param bannedTerms the new banned terms
+     * @param wholeWords if banned terms only match whole words
+     * @param rejecting if messages with banned terms are discarded instead of masked
+     */
+    public void setRules(Collection<String> bannedTerms, boolean wholeWords, boolean rejecting) {
+        this.rules = new Rules(new PatternMatcher(bannedTerms, wholeWords), rejecting);
+    }
+
+    @Override
+    public String getRejectionReason() {
+        return "Message contains banned terms";
+    }
+
+    @Override
+    public boolean intercept(AromaConnection connection, JsonObject message) {
+        // Only user messages are filtered
+        JsonElement type = message.get(AromaProtocol.Packet.TYPE);
+        if (type == null || !AromaProtocol.Event.USER_MESSAGE.equals(type.getAsString())) return true;
+
+        JsonElement content = message.get(AromaProtocol.Packet.Response.UserMessage.CONTENT);
+        if (content == null || !content.isJsonPrimitive()) return true;
+
+        Rules rules = this.rules;
+        if (rules.rejecting()) return !rules.matcher().matches(content.getAsString());
+
+        // Mask banned terms
+        String text = content.getAsString();
+        String masked = rules.matcher().mask(text, AromaContentFilter.MASK);
+        if (masked != text)
+            message.addProperty(AromaProtocol.Packet.Response.UserMessage.CONTENT, masked);
+
+        return true;
+    }
+
+    /**
+     * The compiled banned terms and the action taken on them, swapped as a whole
+     * @param matcher the compiled banned terms
+     * @param rejecting if messages with banned terms are discarded instead of masked
+     */
+    private record Rules(PatternMatcher matcher, boolean rejecting) { }
+}
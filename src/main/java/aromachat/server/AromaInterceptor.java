@@ -0,0 +1,24 @@
+package aromachat.server;
+
+import com.google.gson.JsonObject;
+
+/**
+ * Inspects a message before it reaches its event listener
+ */
+@FunctionalInterface
+public interface AromaInterceptor {
+    /**
+     * Inspect a message
+     * @param connection the connection that sent the message
+     * @param message the message, which may be modified or annotated with new properties
+     * @return true if the message may proceed, false if it must be discarded
+     */
+    boolean intercept(AromaConnection connection, JsonObject message);
+
+    /**
+     * @return the reason sent to the client when this interceptor discards a message
+     */
+    default String getRejectionReason() {
+        return "Message rejected";
+    }
+}
@@ -0,0 +1,46 @@
+package aromachat.server;
+
+import com.google.gson.JsonObject;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The ordered list of interceptors every incoming message goes through
+ */
+public final class AromaPipeline {
+    /**
+     * All interceptors, in the order in which they run
+     */
+    private final List<AromaInterceptor> interceptors = new CopyOnWriteArrayList<>();
+
+    /**
+     * Add an interceptor at the end of the pipeline
+     * @param interceptor the interceptor
+     */
+    public void add(AromaInterceptor interceptor) {
+        this.interceptors.add(interceptor);
+    }
+
+    /**
+     * Remove an interceptor from the pipeline
+     * @param interceptor the interceptor
+     */
+    public void remove(AromaInterceptor interceptor) {
+        this.interceptors.remove(interceptor);
+    }
+
+    /**
+     * Run a message through all interceptors
+     * @param connection the connection that sent the message
+     * @param message the message
+     * @return the interceptor that discarded the message, or null if every interceptor accepted it
+     */
+    public AromaInterceptor process(AromaConnection connection, JsonObject message) {
+        for (AromaInterceptor interceptor : this.interceptors) {
+            if (!interceptor.intercept(connection, message)) return interceptor;
+        }
+
+        return null;
+    }
+}
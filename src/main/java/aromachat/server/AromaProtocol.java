@@ -10,7 +10,7 @@ import java.util.List;
 
 @SuppressWarnings("unused")
 public final class AromaProtocol {
-    public static final String VERSION = "0.0.5";
+    public static final String VERSION = "0.0.6";
     public static final String PATH = "/aromachat/chat";
     public static final int DEFAULT_PORT = 1989;
 
@@ -24,6 +24,7 @@ public final class AromaProtocol {
         public static final String USER_LOGOUT = "userlogout";
         public static final String USER_JOIN = "userjoin";
         public static final String USER_LEAVE = "userleave";
+        public static final String REJECTED = "rejected";
     }
 
     public static abstract class Packet {
@@ -60,8 +61,10 @@ public final class AromaProtocol {
             public static class UserMessage extends Packet {
                 public static final String SENDER = "sender";
                 public static final String CONTENT = "content";
+                public static final String CHANNEL = "channel";
                 private String sender;
                 private String content;
+                private String channel;
 
                 public UserMessage() {
                     this.setType(AromaProtocol.Event.USER_MESSAGE);
@@ -74,6 +77,10 @@ public final class AromaProtocol {
                 public void setContent(String c) {
                     content = c;
                 }
+
+                public void setChannel(String c) {
+                    channel = c;
+                }
             }
 
             public static class UserLogin extends Packet {
@@ -127,6 +134,7 @@ public final class AromaProtocol {
 
             public static class UserJoin extends Packet {
                 private String name;
+                private String channel;
 
                 public UserJoin() {
                     this.setType(AromaProtocol.Event.USER_JOIN);
@@ -135,6 +143,10 @@ public final class AromaProtocol {
                 public void setName(String n) {
                     this.name = n;
                 }
+
+                public void setChannel(String c) {
+                    this.channel = c;
+                }
             }
 
             public static class UserLeave extends UserJoin {
@@ -142,12 +154,28 @@ public final class AromaProtocol {
                     this.setType(AromaProtocol.Event.USER_LEAVE);
                 }
             }
+
+            public static class Rejected extends Packet {
+                private String reason;
+
+                public Rejected() {
+                    this.setType(AromaProtocol.Event.REJECTED);
+                }
+
+                public void setReason(String r) {
+                    this.reason = r;
+                }
+            }
         }
 
         public static class Request {
             public static class Join {
                 public static final String CHANNEL = "channel";
             }
+
+            public static class Leave {
+                public static final String CHANNEL = "channel";
+            }
         }
     }
 
@@ -1,8 +1,12 @@
 package aromachat.server;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * An Aroma Server
@@ -23,10 +27,26 @@ public final class AromaServer {
      * All available text channels
      */
     private final Map<String, AromaTextChannel> textChannels;
+    /**
+     * All available text channels, indexed by id
+     */
+    private final List<AromaTextChannel> textChannelsById;
     /**
      * All connected users
      */
     private final Map<String, AromaConnection> connections;
+    /**
+     * The threads that deliver text channel messages
+     */
+    private final ExecutorService broadcastExecutor;
+    /**
+     * The interceptors incoming messages go through
+     */
+    private final AromaPipeline pipeline;
+    /**
+     * The filter for banned terms in user messages
+     */
+    private final AromaContentFilter contentFilter;
 
     private AromaServer() {
         if (AromaServer.getConfiguration() == null)
@@ -34,13 +54,30 @@ public final class AromaServer {
 
         // Allocate
         this.textChannels = new HashMap<>();
+        this.textChannelsById = new ArrayList<>();
         this.connections = new HashMap<>();
+        this.broadcastExecutor = Executors.newFixedThreadPool(AromaServer.getConfiguration().getBroadcastThreads());
+        this.pipeline = new AromaPipeline();
+        this.contentFilter = new AromaContentFilter(AromaServer.getConfiguration().getBannedTerms(),
+                                                    AromaServer.getConfiguration().isMatchingWholeWords(),
+                                                    AromaServer.getConfiguration().isRejectingBannedMessages());
+
+        // Install built-in interceptors
+        this.pipeline.add(this.contentFilter);
 
-        // Update text channels
+        // Update text channels, each one gets the next free id
         AromaServer.getConfiguration()
                     .getTextChannelNames()
-                     .forEach(channel -> this.textChannels.put(channel,
-                                                               new AromaTextChannel(channel)));
+                     .forEach(channel -> {
+                         if (this.textChannels.containsKey(channel)) return;
+
+                         AromaTextChannel textChannel = new AromaTextChannel(channel,
+                                                                             this.textChannelsById.size(),
+                                                                             AromaServer.getConfiguration().getChannelShardSize(),
+                                                                             this.broadcastExecutor);
+                         this.textChannels.put(channel, textChannel);
+                         this.textChannelsById.add(textChannel);
+                     });
     }
 
     /**
@@ -101,7 +138,23 @@ public final class AromaServer {
         return this.textChannels;
     }
 
+    /**
+     * @param id the channel's id
+     * @return the text channel with the given id
+     */
+    public AromaTextChannel getTextChannel(int id) {
+        return this.textChannelsById.get(id);
+    }
+
     public Map<String, AromaConnection> getConnections() {
         return this.connections;
     }
+
+    public AromaPipeline getPipeline() {
+        return this.pipeline;
+    }
+
+    public AromaContentFilter getContentFilter() {
+        return this.contentFilter;
+    }
 }
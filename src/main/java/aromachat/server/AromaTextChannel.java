@@ -1,12 +1,17 @@
 package aromachat.server;
 
+import com.google.gson.Gson;
+
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * A text channel
+ * @apiNote users are split into fixed-size shards, each delivered by its own task
  * @author Alessandro-Salerno
  */
 public final class AromaTextChannel {
@@ -14,19 +19,39 @@ public final class AromaTextChannel {
      * The channel's name
      */
     private final String name;
+    /**
+     * The channel's id, used by connections to keep track of their subscriptions
+     */
+    private final int id;
     /**
      * All message sent through the channel
      */
     private final List<Object> messages;
     /**
-     * All users on the channel
+     * All shards of the channel
+     */
+    private final List<Shard> shards;
+    /**
+     * The shard each user belongs to
+     */
+    private final Map<String, Shard> users;
+    /**
+     * The maximum number of users in a shard
+     */
+    private final int shardSize;
+    /**
+     * The executor that delivers messages to the shards
      */
-    private final Map<String, AromaConnection> users;
+    private final Executor executor;
 
-    public AromaTextChannel(String name) {
+    public AromaTextChannel(String name, int id, int shardSize, Executor executor) {
         this.name = name;
+        this.id = id;
         this.messages = new ArrayList<>();
+        this.shards = new ArrayList<>();
         this.users = new HashMap<>();
+        this.shardSize = Math.max(1, shardSize);
+        this.executor = executor;
     }
 
     /**
@@ -37,10 +62,23 @@ public final class AromaTextChannel {
         // Broadcast notice to all already connected users
         AromaProtocol.Packet.Response.UserJoin userJoin = new AromaProtocol.Packet.Response.UserJoin();
         userJoin.setName(user.getUsername());
+        userJoin.setChannel(this.name);
         this.silentBroadcast(userJoin);
 
-        // Add the user
-        users.put(user.getUsername(), user);
+        // Add the user to the first shard with room left
+        synchronized (this.shards) {
+            Shard shard = this.shards.stream()
+                                      .filter(s -> s.size() < this.shardSize)
+                                      .findFirst()
+                                      .orElseGet(() -> {
+                                          Shard s = new Shard();
+                                          this.shards.add(s);
+                                          return s;
+                                      });
+
+            shard.add(user);
+            this.users.put(user.getUsername(), shard);
+        }
     }
 
     /**
@@ -48,37 +86,50 @@ public final class AromaTextChannel {
      * @param user the user
      */
     public void leave(AromaConnection user) {
-        // Add the user
-        if (!users.containsKey(user.getUsername())) return;
-        users.remove(user.getUsername());
+        // Remove the user from its shard
+        synchronized (this.shards) {
+            Shard shard = this.users.remove(user.getUsername());
+            if (shard == null) return;
+            shard.remove(user);
+        }
 
         // Broadcast the notice to all remaining users
         AromaProtocol.Packet.Response.UserLeave userLeave = new AromaProtocol.Packet.Response.UserLeave();
         userLeave.setName(user.getUsername());
+        userLeave.setChannel(this.name);
         this.silentBroadcast(userLeave);
     }
 
     /**
      * Broadcast a message to all users and save it
      * @param object the message
+     * @return a future that completes once the message has been queued for every user
      */
-    public void broadcast(Object object) {
+    public CompletableFuture<Void> broadcast(Object object) {
         // Broadcast the message
-        this.silentBroadcast(object);
+        CompletableFuture<Void> delivery = this.silentBroadcast(object);
 
         // Save the message
         this.messages.add(object);
+
+        return delivery;
     }
 
     /**
      * Broadcast a message to all users
      * @param object the message
+     * @return a future that completes once the message has been queued for every user
      */
-    private void silentBroadcast(Object object) {
-        synchronized (this.users) {
-            this.users.values().stream()
-                    .parallel()
-                    .forEach(user -> user.send(object));
+    private CompletableFuture<Void> silentBroadcast(Object object) {
+        // Encode the message once for all users
+        String text = new Gson().toJson(object);
+
+        // Queue the message on every shard, empty shards are kept for later joins but skipped
+        synchronized (this.shards) {
+            return CompletableFuture.allOf(this.shards.stream()
+                                                       .filter(shard -> shard.size() > 0)
+                                                       .map(shard -> shard.deliver(text, this.executor))
+                                                       .toArray(CompletableFuture[]::new));
         }
     }
 
@@ -86,6 +137,10 @@ public final class AromaTextChannel {
         return this.name;
     }
 
+    public int getId() {
+        return this.id;
+    }
+
     public List<Object> getMessages() {
         return this.messages;
     }
@@ -94,4 +149,69 @@ public final class AromaTextChannel {
     public String toString() {
         return this.getName();
     }
+
+    /**
+     * A fixed-size group of users that receives messages in order
+     */
+    private static final class Shard {
+        /**
+         * All users in the shard
+         */
+        private final Map<String, AromaConnection> users = new HashMap<>();
+        /**
+         * The last delivery queued on the shard
+         */
+        private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+
+        private synchronized void add(AromaConnection user) {
+            this.users.put(user.getUsername(), user);
+        }
+
+        private synchronized void remove(AromaConnection user) {
+            this.users.remove(user.getUsername());
+        }
+
+        private synchronized int size() {
+            return this.users.size();
+        }
+
+        /**
+         * Queue a message for delivery after all previously queued ones
+         * @apiNote the recipients are the users in the shard when the message is queued
+         * @param text the encoded message
+         * @param executor the executor that delivers the message
+         * @return a future that completes once the message has been queued for every recipient
+         */
+        private synchronized CompletableFuture<Void> deliver(String text, Executor executor) {
+            List<AromaConnection> recipients = new ArrayList<>(this.users.values());
+            CompletableFuture<Void> delivery = this.tail.thenRunAsync(() -> this.send(recipients, text), executor);
+
+            // A failed delivery (e.g. a rejected task) must not stop the ones queued after it
+            this.tail = delivery.exceptionally(t -> {
+                System.out.println("Could not deliver message to shard: " + t);
+                return null;
+            });
+
+            return delivery;
+        }
+
+        /**
+         * Send a message to a list of users
+         * @apiNote users that have left the shard since the message was queued are skipped,
+         *          the lock is held so that a leave cannot slip in between the check and the send
+         * @param recipients the users
+         * @param text the encoded message
+         */
+        private synchronized void send(List<AromaConnection> recipients, String text) {
+            // A failing user must not hold back the rest of the shard
+            for (AromaConnection user : recipients) {
+                if (this.users.get(user.getUsername()) != user) continue;
+
+                try { user.sendText(text); }
+                catch (RuntimeException re) {
+                    System.out.println("Could not deliver message to " + user.getUsername() + ": " + re.getMessage());
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,108 @@
+package aromachat.server;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A scripted client session against the running server
+ * @apiNote only used when the aroma.training property is set, to record the classes loaded by a real session
+ */
+public final class AromaTrainingSession {
+    /**
+     * The listener to connect to
+     */
+    private final AromaConfiguration.Listener listener;
+
+    public AromaTrainingSession(AromaConfiguration.Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Connect to the server like a client would: handshake, join a channel, send a message and close
+     * @throws Exception if the server does not answer as expected
+     */
+    public void run() throws Exception {
+        String host = (this.listener.getHost() == null || this.listener.getHost().equals("0.0.0.0")) ? "localhost" : this.listener.getHost();
+        URI uri = URI.create("ws://" + host + ":" + this.listener.getPort() + AromaProtocol.PATH
+                             + "?" + AromaProtocol.Parameter.USERNAME + "=training"
+                             + "&" + AromaProtocol.Parameter.PROTOCOL_VERSION + "=" + AromaProtocol.VERSION);
+
+        BlockingQueue<String> replies = new LinkedBlockingQueue<>();
+        CompletableFuture<Void> closed = new CompletableFuture<>();
+        WebSocket webSocket = HttpClient.newHttpClient()
+                                         .newWebSocketBuilder()
+                                          .buildAsync(uri, new WebSocket.Listener() {
+                                              private final StringBuilder buffer = new StringBuilder();
+
+                                              @Override
+                                              public CompletionStage<?> onText(WebSocket ws, CharSequence data, boolean last) {
+                                                  this.buffer.append(data);
+                                                  if (last) {
+                                                      replies.add(this.buffer.toString());
+                                                      this.buffer.setLength(0);
+                                                  }
+
+                                                  ws.request(1);
+                                                  return null;
+                                              }
+
+                                              @Override
+                                              public CompletionStage<?> onClose(WebSocket ws, int statusCode, String reason) {
+                                                  closed.complete(null);
+                                                  return null;
+                                              }
+                                          })
+                                           .get(30, TimeUnit.SECONDS);
+
+        // Wait for the login reply
+        AromaTrainingSession.awaitReply(replies, AromaProtocol.Event.LOGIN);
+
+        List<String> channels = AromaServer.getConfiguration().getTextChannelNames();
+        if (!channels.isEmpty()) {
+            // Join a channel and send a message to it
+            JsonObject join = new JsonObject();
+            join.addProperty(AromaProtocol.Packet.TYPE, AromaProtocol.Event.JOIN);
+            join.addProperty(AromaProtocol.Packet.Request.Join.CHANNEL, channels.get(0));
+            webSocket.sendText(join.toString(), true).get(30, TimeUnit.SECONDS);
+            AromaTrainingSession.awaitReply(replies, AromaProtocol.Event.JOIN);
+
+            JsonObject message = new JsonObject();
+            message.addProperty(AromaProtocol.Packet.TYPE, AromaProtocol.Event.USER_MESSAGE);
+            message.addProperty(AromaProtocol.Packet.Response.UserMessage.CHANNEL, channels.get(0));
+            message.addProperty(AromaProtocol.Packet.Response.UserMessage.CONTENT, "training");
+            webSocket.sendText(message.toString(), true).get(30, TimeUnit.SECONDS);
+            AromaTrainingSession.awaitReply(replies, AromaProtocol.Event.USER_MESSAGE);
+        }
+
+        // Close the connection and wait for the server to acknowledge it
+        webSocket.sendClose(WebSocket.NORMAL_CLOSURE, "").get(30, TimeUnit.SECONDS);
+        closed.get(30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Wait for a packet of a given type, skipping the others
+     * @param replies the packets received so far
+     * @param type the type
+     * @throws Exception if no such packet arrives in time
+     */
+    private static void awaitReply(BlockingQueue<String> replies, String type) throws Exception {
+        String reply;
+        do {
+            if ((reply = replies.poll(30, TimeUnit.SECONDS)) == null)
+                throw new TimeoutException("No " + type + " reply from the server");
+        } while (!type.equals(new Gson().fromJson(reply, JsonObject.class)
+                                         .get(AromaProtocol.Packet.TYPE)
+                                          .getAsString()));
+    }
+}
@@ -1,24 +1,102 @@
 package aromachat.server;
 
 import com.google.gson.Gson;
+import org.glassfish.grizzly.threadpool.ThreadPoolConfig;
+import org.glassfish.tyrus.container.grizzly.server.GrizzlyServerContainer;
+import org.glassfish.tyrus.core.TyrusWebSocketEngine;
 import org.glassfish.tyrus.server.Server;
 
+import javax.websocket.DeploymentException;
 import java.io.FileReader;
 import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 public class Main {
     public static void main(String[] args) throws Exception {
-        FileReader reader = new FileReader("aroma.json", Charset.defaultCharset());
+        // The configuration file may be passed as the first argument
+        String configPath = (args.length > 0) ? args[0] : "aroma.json";
+
+        FileReader reader = new FileReader(configPath, Charset.defaultCharset());
         AromaServer.setConfiguration(new Gson().fromJson(reader, AromaConfiguration.class));
         AromaServer.getInstance(); // Make sure that the singleton instance is created
 
-        Server server = new Server(AromaServer.getConfiguration().getHost(),
-                                   AromaProtocol.DEFAULT_PORT,
-                                   "",
-                                   null,
-                                   AromaConnection.class);
+        Map<String, Object> properties = getServerProperties(AromaServer.getConfiguration().getTransport());
+
+        // Start one server per listener
+        List<Server> servers = new ArrayList<>();
+        for (AromaConfiguration.Listener listener : AromaServer.getConfiguration().getListeners()) {
+            Server server = new Server(listener.getHost(),
+                                       listener.getPort(),
+                                       "",
+                                       properties,
+                                       AromaConnection.class);
+
+            try { server.start(); }
+            catch (DeploymentException |
+                    RuntimeException e) {
+                // Do not keep running with only some of the listeners
+                System.out.println("Could not listen on " + listener + ": " + e.getMessage());
+                servers.forEach(Server::stop);
+                System.exit(1);
+            }
+
+            servers.add(server);
+            System.out.println("Listening on " + listener);
+        }
+
+        // Exercise one connection and stop (used by the appcds build profile to record loaded classes)
+        if (Boolean.getBoolean("aroma.training")) {
+            new AromaTrainingSession(AromaServer.getConfiguration().getListeners().get(0)).run();
+            System.exit(0);
+        }
+
+        // Apply changes to the configuration file while running
+        new AromaConfigurationWatcher(Path.of(configPath)).start();
+
+        // Keep the main thread alive without spinning, the servers run on their own threads
+        Thread.currentThread().join();
+    }
+
+    /**
+     * Translate the transport configuration into Tyrus server properties
+     * @param transport the transport configuration
+     * @return the properties
+     */
+    private static Map<String, Object> getServerProperties(AromaConfiguration.Transport transport) {
+        Map<String, Object> properties = new HashMap<>();
+
+        if (transport.getIncomingBufferSize() > 0)
+            properties.put(TyrusWebSocketEngine.INCOMING_BUFFER_SIZE, transport.getIncomingBufferSize());
+
+        if (transport.getWorkerThreads() > 0 || transport.getWorkerQueueLimit() > 0) {
+            // Pool sizes not set in the configuration are left to Grizzly
+            ThreadPoolConfig workerConfig = ThreadPoolConfig.defaultConfig()
+                                                             .copy()
+                                                              .setPoolName("aroma-worker");
+
+            if (transport.getWorkerThreads() > 0)
+                workerConfig.setCorePoolSize(transport.getWorkerThreads())
+                             .setMaxPoolSize(transport.getWorkerThreads());
+
+            if (transport.getWorkerQueueLimit() > 0)
+                workerConfig.setQueueLimit(transport.getWorkerQueueLimit());
+
+            properties.put(GrizzlyServerContainer.WORKER_THREAD_POOL_CONFIG, workerConfig);
+        }
+
+        if (transport.getSelectorThreads() > 0) {
+            properties.put(GrizzlyServerContainer.SELECTOR_THREAD_POOL_CONFIG,
+                           ThreadPoolConfig.defaultConfig()
+                                            .copy()
+                                             .setPoolName("aroma-selector")
+                                              .setCorePoolSize(transport.getSelectorThreads())
+                                               .setMaxPoolSize(transport.getSelectorThreads()));
+        }
 
-        server.start();
-        while (true);
+        return properties;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,170 @@
+package aromachat.server.util;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Finds many patterns in a text in a single pass (Aho-Corasick automaton)
+ * @apiNote matching is case-insensitive and instances are immutable, thus thread-safe
+ */
+public final class PatternMatcher {
+    /**
+     * The root of the automaton
+     */
+    private final Node root;
+    /**
+     * If the matcher has no patterns at all
+     */
+    private final boolean empty;
+    /**
+     * If a pattern only matches when it is not surrounded by letters or digits
+     */
+    private final boolean wholeWords;
+
+    /**
+     * Constructor
+     * @param patterns the patterns to look for (empty patterns are ignored)
+     * @param wholeWords if a pattern only matches when it is not surrounded by letters or digits
+     */
+    public PatternMatcher(Collection<String> patterns, boolean wholeWords) {
+        this.root = new Node();
+        this.wholeWords = wholeWords;
+        boolean hasPatterns = false;
+
+        // Build the trie
+        for (String pattern : patterns) {
+            if (pattern == null || pattern.isEmpty()) continue;
+
+            Node node = this.root;
+            for (int i = 0; i < pattern.length(); i++) {
+                node = node.children.computeIfAbsent(Character.toLowerCase(pattern.charAt(i)), c -> new Node());
+            }
+
+            node.length = Math.max(node.length, pattern.length());
+            hasPatterns = true;
+        }
+
+        this.empty = !hasPatterns;
+
+        // Link every node to its longest proper suffix in the trie (breadth first)
+        Queue<Node> queue = new ArrayDeque<>();
+        this.root.fail = this.root;
+        for (Node child : this.root.children.values()) {
+            child.fail = this.root;
+            queue.add(child);
+        }
+
+        while (!queue.isEmpty()) {
+            Node node = queue.poll();
+            for (Map.Entry<Character, Node> entry : node.children.entrySet()) {
+                Node child = entry.getValue();
+                child.fail = this.next(node.fail, entry.getKey());
+
+                // A node also matches every pattern that ends at its suffixes
+                child.output = (child.fail.length > 0) ? child.fail : child.fail.output;
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * @param text the text
+     * @return true if the text contains at least one pattern
+     */
+    public boolean matches(CharSequence text) {
+        if (this.empty) return false;
+
+        Node node = this.root;
+        for (int i = 0; i < text.length(); i++) {
+            node = this.next(node, Character.toLowerCase(text.charAt(i)));
+
+            // Check every pattern that ends here
+            for (Node match = (node.length > 0) ? node : node.output; match != null; match = match.output) {
+                if (this.accepts(text, i - match.length + 1, i)) return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Replace every occurrence of every pattern
+     * @param text the text
+     * @param mask the character that replaces matched characters
+     * @return the masked text, or the same instance if nothing matched
+     */
+    public String mask(String text, char mask) {
+        if (this.empty) return text;
+
+        char[] masked = null;
+        Node node = this.root;
+        for (int i = 0; i < text.length(); i++) {
+            node = this.next(node, Character.toLowerCase(text.charAt(i)));
+
+            // Mask every pattern that ends here
+            for (Node match = (node.length > 0) ? node : node.output; match != null; match = match.output) {
+                int start = i - match.length + 1;
+                if (!this.accepts(text, start, i)) continue;
+
+                if (masked == null) masked = text.toCharArray();
+                for (int j = start; j <= i; j++) masked[j] = mask;
+            }
+        }
+
+        return (masked == null) ? text : new String(masked);
+    }
+
+    /**
+     * Check if an occurrence counts as a match
+     * @param text the text
+     * @param start the index of the occurrence's first character
+     * @param end the index of the occurrence's last character
+     * @return true if whole words are not required or the occurrence is not surrounded by letters or digits
+     */
+    private boolean accepts(CharSequence text, int start, int end) {
+        if (!this.wholeWords) return true;
+
+        return (start == 0 || !Character.isLetterOrDigit(text.charAt(start - 1)))
+               && (end == text.length() - 1 || !Character.isLetterOrDigit(text.charAt(end + 1)));
+    }
+
+    /**
+     * Follow the automaton from a node
+     * @param node the current node
+     * @param c the next character
+     * @return the next node
+     */
+    private Node next(Node node, char c) {
+        Node child;
+        while ((child = node.children.get(c)) == null && node != this.root) {
+            node = node.fail;
+        }
+
+        return (child == null) ? this.root : child;
+    }
+
+    /**
+     * A state of the automaton
+     */
+    private static final class Node {
+        /**
+         * The transitions to the next states
+         */
+        private final Map<Character, Node> children = new HashMap<>();
+        /**
+         * The state reached when no transition exists
+         */
+        private Node fail;
+        /**
+         * The length of the pattern that ends in this state (0 if none)
+         */
+        private int length;
+        /**
+         * The closest state along the fail links where a pattern ends (null if none)
+         */
+        private Node output;
+    }
+}